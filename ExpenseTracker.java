@@ -3,28 +3,59 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List; // Explicit import to resolve ambiguity
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.Checksum;
 
 public class ExpenseTracker extends JFrame {
     private HashMap<String, java.util.List<Expense>> expenseMap;
     private JTextField amountField;
     private JTextField descriptionField;
     private JComboBox<String> categoryBox;
+    private JComboBox<String> repeatBox;
+    private JTextField intervalField;
+    private JTextField occurrencesField;
     private JTextArea summaryArea;
     private JTable expenseTable;
     private DefaultTableModel tableModel;
     private JDateChooser dateChooser;
     private JPanel chartPanel;
-
-    private final String DATA_FILE = "expenses.txt";
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private JCheckBox projectionToggle;
+    private List<RecurringExpense> recurringExpenses;
+
+    private static final String DATA_FILE = "expenses.txt";
+    private static final String RECURRING_FILE = "recurring.txt";
+    private static final int PROJECTION_DAYS = 30;
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+
+    // Data file layout: a header line, then records prefixed with their own CRC32C,
+    // with a footer after every block carrying its index, record count and CRC32C,
+    // and a trailer with the total block and record counts
+    private static final String FILE_HEADER = "#expenses,2";
+    private static final String BLOCK_FOOTER = "#block";
+    private static final String FILE_TRAILER = "#end";
+    private static final byte[] BLOCK_FOOTER_PREFIX = (BLOCK_FOOTER + ",").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FILE_TRAILER_PREFIX = (FILE_TRAILER + ",").getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_PROBLEMS_SHOWN = 5;
+    private static final int RECORDS_PER_BLOCK = 256;
 
     public ExpenseTracker() {
         expenseMap = new HashMap<>();
+        recurringExpenses = new ArrayList<>();
         loadExpensesFromFile();
+        loadRecurringFromFile();
+
+        // Catch up on recurring occurrences that fell due since the last run
+        materializeRecurringExpenses(recurringExpenses);
 
         setTitle("Expense Tracker");
         setSize(800, 600);
@@ -47,6 +78,8 @@ public class ExpenseTracker extends JFrame {
 
         // Chart tab
         chartPanel = new JPanel();
+        projectionToggle = new JCheckBox("Include upcoming recurring (next " + PROJECTION_DAYS + " days)");
+        projectionToggle.addActionListener(e -> updateChart());
         tabbedPane.addTab("Charts", chartPanel);
 
         // Add components to the main frame
@@ -56,7 +89,11 @@ public class ExpenseTracker extends JFrame {
         // Save data when window closes
         addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
-                saveExpensesToFile();
+                // Recurring rules record which occurrences are already stored, so they
+                // are only saved once the expenses they refer to are safely on disk
+                if (saveExpensesToFile()) {
+                    saveRecurringToFile();
+                }
             }
         });
 
@@ -90,6 +127,20 @@ public class ExpenseTracker extends JFrame {
         dateChooser = new JDateChooser();
         dateChooser.setDate(new Date());
 
+        JLabel repeatLabel = new JLabel("Repeat:");
+        repeatBox = new JComboBox<>();
+        repeatBox.addItem("None");
+        for (Frequency frequency : Frequency.values()) {
+            repeatBox.addItem(frequency.getLabel());
+        }
+
+        JLabel intervalLabel = new JLabel("Every (periods):");
+        intervalField = new JTextField("1", 5);
+
+        JLabel occurrencesLabel = new JLabel("Occurrences:");
+        occurrencesField = new JTextField(5);
+        occurrencesField.setToolTipText("Number of instalments, e.g. for an EMI. Leave blank to repeat until stopped.");
+
         JButton addButton = new JButton("Add Expense");
         addButton.addActionListener(e -> addExpense());
 
@@ -123,7 +174,27 @@ public class ExpenseTracker extends JFrame {
         panel.add(descriptionField, gbc);
 
         // Row 2
-        gbc.gridx = 1; gbc.gridy = 2;
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(repeatLabel, gbc);
+
+        gbc.gridx = 1;
+        panel.add(repeatBox, gbc);
+
+        gbc.gridx = 2;
+        panel.add(intervalLabel, gbc);
+
+        gbc.gridx = 3;
+        panel.add(intervalField, gbc);
+
+        // Row 3
+        gbc.gridx = 0; gbc.gridy = 3;
+        panel.add(occurrencesLabel, gbc);
+
+        gbc.gridx = 1;
+        panel.add(occurrencesField, gbc);
+
+        // Row 4
+        gbc.gridx = 1; gbc.gridy = 4;
         panel.add(addButton, gbc);
 
         gbc.gridx = 2;
@@ -183,8 +254,12 @@ public class ExpenseTracker extends JFrame {
         JButton filterButton = new JButton("Filter By Category");
         filterButton.addActionListener(e -> filterByCategory());
 
+        JButton stopRecurringButton = new JButton("Stop Recurring");
+        stopRecurringButton.addActionListener(e -> stopRecurringExpense());
+
         buttonPanel.add(deleteButton);
         buttonPanel.add(filterButton);
+        buttonPanel.add(stopRecurringButton);
         panel.add(buttonPanel, BorderLayout.SOUTH);
 
         return panel;
@@ -212,12 +287,43 @@ public class ExpenseTracker extends JFrame {
             Date date = dateChooser.getDate();
             if (date == null) date = new Date();
 
-            Expense expense = new Expense(amount, category, description, date);
+            Frequency frequency = Frequency.fromLabel(repeatBox.getSelectedItem().toString());
+            if (frequency != null) {
+                int interval;
+                int occurrences;
+                try {
+                    interval = Integer.parseInt(intervalField.getText().trim());
+                    String occurrencesText = occurrencesField.getText().trim();
+                    occurrences = occurrencesText.isEmpty() ? 0 : Integer.parseInt(occurrencesText);
+                } catch (NumberFormatException e) {
+                    JOptionPane.showMessageDialog(this, "Please enter whole numbers for the repeat interval and occurrences.");
+                    return;
+                }
+                if (interval < 1 || occurrences < 0) {
+                    JOptionPane.showMessageDialog(this, "Repeat interval must be at least 1 and occurrences cannot be negative.");
+                    return;
+                }
+
+                // Store only the rule; occurrences up to today are materialized now,
+                // later ones are projected on demand
+                RecurringExpense recurring = new RecurringExpense(UUID.randomUUID().toString(),
+                    amount, category, description, date, frequency, interval, null, null);
+                if (occurrences > 0) {
+                    // A fixed number of instalments ends on the last one
+                    recurring.setEndDate(recurring.occurrence(occurrences - 1));
+                }
+                recurringExpenses.add(recurring);
+                materializeRecurringExpenses(Collections.singletonList(recurring));
+
+                JOptionPane.showMessageDialog(this, "Recurring expense added successfully!");
+            } else {
+                Expense expense = new Expense(amount, category, description, date);
 
-            expenseMap.putIfAbsent(category, new ArrayList<>());
-            expenseMap.get(category).add(expense);
+                expenseMap.putIfAbsent(category, new ArrayList<>());
+                expenseMap.get(category).add(expense);
 
-            JOptionPane.showMessageDialog(this, "Expense added successfully!");
+                JOptionPane.showMessageDialog(this, "Expense added successfully!");
+            }
 
             clearFields();
             updateExpenseTable();
@@ -233,6 +339,9 @@ public class ExpenseTracker extends JFrame {
         amountField.setText("");
         descriptionField.setText("");
         dateChooser.setDate(new Date());
+        repeatBox.setSelectedIndex(0);
+        intervalField.setText("1");
+        occurrencesField.setText("");
     }
 
     private void updateSummary() {
@@ -296,6 +405,28 @@ public class ExpenseTracker extends JFrame {
             }
         }
 
+        // Upcoming recurring expenses are projected, never stored
+        if (!recurringExpenses.isEmpty()) {
+            Date from = startOfDay(new Date());
+            Date to = addDays(from, PROJECTION_DAYS);
+
+            List<Expense> upcoming = projectRecurringExpenses(from, to);
+            upcoming.sort(Comparator.comparing(Expense::getDate));
+
+            double upcomingTotal = upcoming.stream()
+                .mapToDouble(Expense::getAmount)
+                .sum();
+
+            summary.append("\n\nUPCOMING RECURRING (next ").append(PROJECTION_DAYS).append(" days)\n");
+            summary.append("--------------------------------------------------\n");
+            for (Expense expense : upcoming) {
+                summary.append(String.format("%s  %-15s: ₹%-10.2f %s\n",
+                    dateFormat.format(expense.getDate()), expense.getCategory(),
+                    expense.getAmount(), expense.getDescription()));
+            }
+            summary.append(String.format("PROJECTED TOTAL: ₹%.2f\n", upcomingTotal));
+        }
+
         summaryArea.setText(summary.toString());
     }
 
@@ -329,6 +460,7 @@ public class ExpenseTracker extends JFrame {
 
         JPanel pieChartPanel = createPieChart();
         chartPanel.add(pieChartPanel, BorderLayout.CENTER);
+        chartPanel.add(projectionToggle, BorderLayout.SOUTH);
 
         chartPanel.revalidate();
         chartPanel.repaint();
@@ -356,6 +488,15 @@ public class ExpenseTracker extends JFrame {
                     totalAmount += sum;
                 }
 
+                // Add projected recurring occurrences when requested
+                if (projectionToggle.isSelected()) {
+                    Date from = startOfDay(new Date());
+                    for (Expense expense : projectRecurringExpenses(from, addDays(from, PROJECTION_DAYS))) {
+                        categoryTotals.merge(expense.getCategory(), expense.getAmount(), Double::sum);
+                        totalAmount += expense.getAmount();
+                    }
+                }
+
                 if (totalAmount == 0) {
                     g2d.drawString("No expenses to display", getWidth() / 2 - 60, getHeight() / 2);
                     return;
@@ -494,6 +635,26 @@ public class ExpenseTracker extends JFrame {
         }
     }
 
+    private void stopRecurringExpense() {
+        if (recurringExpenses.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No recurring expenses defined.");
+            return;
+        }
+
+        RecurringExpense[] definitions = recurringExpenses.toArray(new RecurringExpense[0]);
+        RecurringExpense selected = (RecurringExpense) JOptionPane.showInputDialog(
+            this, "Select recurring expense to stop:\n(Entries already recorded are kept)",
+            "Stop Recurring", JOptionPane.QUESTION_MESSAGE, null, definitions, definitions[0]);
+
+        if (selected != null) {
+            recurringExpenses.remove(selected);
+            updateSummary();
+            updateChart();
+
+            JOptionPane.showMessageDialog(this, "Recurring expense stopped.");
+        }
+    }
+
     private void exportSummary() {
         try {
             JFileChooser fileChooser = new JFileChooser();
@@ -516,23 +677,19 @@ public class ExpenseTracker extends JFrame {
         }
     }
 
-    private void saveExpensesToFile() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_FILE))) {
-            for (Map.Entry<String, java.util.List<Expense>> entry : expenseMap.entrySet()) {
-                for (Expense expense : entry.getValue()) {
-                    // Format: category,amount,description,date
-                    writer.write(String.format("%s,%f,%s,%s",
-                        expense.getCategory(),
-                        expense.getAmount(),
-                        expense.getDescription().replace(',', ';'),  // Escape commas in description
-                        dateFormat.format(expense.getDate())
-                    ));
-                    writer.newLine();
-                }
-            }
+    private boolean saveExpensesToFile() {
+        List<Expense> allExpenses = new ArrayList<>();
+        for (List<Expense> expenses : expenseMap.values()) {
+            allExpenses.addAll(expenses);
+        }
+
+        try {
+            writeFileAtomically(new File(DATA_FILE), encodeDataFile(allExpenses));
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving file: " + e.getMessage());
             JOptionPane.showMessageDialog(this, "Error saving expenses: " + e.getMessage());
+            return false;
         }
     }
 
@@ -540,35 +697,526 @@ public class ExpenseTracker extends JFrame {
         File file = new File(DATA_FILE);
         if (!file.exists()) return;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        try {
+            VerifyReport report = verifyDataFile(file);
+
+            for (Expense expense : report.getRecovered()) {
+                expenseMap.putIfAbsent(expense.getCategory(), new ArrayList<>());
+                expenseMap.get(expense.getCategory()).add(expense);
+            }
+
+            if (!report.isClean()) {
+                // Set the damaged records aside before the next save rewrites the file without them
+                report.print(System.err);
+                applyRepair(file, report);
+
+                StringBuilder message = new StringBuilder();
+                message.append(report.getDamaged().size()).append(" damaged record(s) found in ")
+                       .append(DATA_FILE).append(".\n");
+
+                // Block problems mean whole records may be gone without a damaged line to show for it
+                List<String> problems = report.getBlockProblems();
+                if (!problems.isEmpty()) {
+                    message.append(problems.size()).append(" block problem(s) found, so some records may be missing:\n");
+                    for (String problem : problems.subList(0, Math.min(problems.size(), MAX_PROBLEMS_SHOWN))) {
+                        message.append("  - ").append(problem).append("\n");
+                    }
+                    if (problems.size() > MAX_PROBLEMS_SHOWN) {
+                        message.append("  ... and ").append(problems.size() - MAX_PROBLEMS_SHOWN).append(" more\n");
+                    }
+                }
+
+                message.append(report.getRecovered().size()).append(" record(s) were recovered.\n")
+                       .append("The original file was backed up to ").append(DATA_FILE).append(".bak and the damaged\n")
+                       .append("records and block problems were written to ").append(DATA_FILE).append(".damaged.");
+
+                JOptionPane.showMessageDialog(this, message.toString());
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading file: " + e.getMessage());
+        }
+    }
+
+    // Format: category,amount,description,date[,recurringId]
+    static String formatRecord(Expense expense, SimpleDateFormat dateFormat) {
+        String record = String.format("%s,%f,%s,%s",
+            expense.getCategory(),
+            expense.getAmount(),
+            expense.getDescription().replace(',', ';'),  // Escape commas in description
+            dateFormat.format(expense.getDate()));
+        return expense.getRecurringId() == null ? record : record + "," + expense.getRecurringId();
+    }
+
+    static Expense parseRecord(String record, SimpleDateFormat dateFormat) throws ParseException {
+        String[] parts = record.split(",", 5); // Limit to 5 parts
+        if (parts.length < 4) {
+            throw new ParseException("Expected 4 fields: " + record, 0);
+        }
+
+        String category = parts[0];
+        double amount = Double.parseDouble(parts[1]);
+        String description = parts[2];
+        Date date = dateFormat.parse(parts[3]);
+        String recurringId = parts.length == 5 ? parts[4] : null;
+
+        return new Expense(amount, category, description, date, recurringId);
+    }
+
+    static long crc32c(byte[] bytes, int offset, int length) {
+        Checksum checksum = new Crc32c();
+        checksum.update(bytes, offset, length);
+        return checksum.getValue();
+    }
+
+    static List<String> encodeDataFile(List<Expense> expenses) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+        List<String> lines = new ArrayList<>();
+        lines.add(FILE_HEADER);
+
+        Checksum blockChecksum = new Crc32c();
+        int blockIndex = 0;
+        int blockCount = 0;
+
+        for (Expense expense : expenses) {
+            byte[] record = formatRecord(expense, dateFormat).getBytes(StandardCharsets.UTF_8);
+            String line = String.format("%08x,", crc32c(record, 0, record.length))
+                + new String(record, StandardCharsets.UTF_8);
+            byte[] lineBytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+
+            lines.add(line);
+            blockChecksum.update(lineBytes, 0, lineBytes.length);
+            blockCount++;
+
+            if (blockCount == RECORDS_PER_BLOCK) {
+                lines.add(String.format("%s,%d,%d,%08x", BLOCK_FOOTER, blockIndex, blockCount, blockChecksum.getValue()));
+                blockChecksum.reset();
+                blockIndex++;
+                blockCount = 0;
+            }
+        }
+
+        if (blockCount > 0) {
+            lines.add(String.format("%s,%d,%d,%08x", BLOCK_FOOTER, blockIndex, blockCount, blockChecksum.getValue()));
+            blockIndex++;
+        }
+
+        lines.add(String.format("%s,%d,%d", FILE_TRAILER, blockIndex, expenses.size()));
+        return lines;
+    }
+
+    // Writes to a temporary file, syncs it to disk and renames it over the target,
+    // so a crash mid-write leaves the previous file intact
+    static void writeFileAtomically(File target, List<String> lines) throws IOException {
+        Path targetPath = target.getAbsoluteFile().toPath();
+        Path directory = targetPath.getParent();
+        Path temp = Files.createTempFile(directory, target.getName(), ".tmp");  // Unique per running instance
+
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');  // Fixed line ending keeps block checksums platform independent
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+
+            try {
+                Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        // Sync the directory so the rename itself survives a power loss
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for syncing on Windows; the rename is durable there already
+        }
+    }
+
+    // Checks every record and block checksum of the data file, verifying blocks in parallel.
+    // Files written before checksums were added are still read; only their parse errors are reported.
+    static VerifyReport verifyDataFile(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        // Single pass over the bytes to find where each line starts and ends
+        List<int[]> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                if (i > lineStart || i < bytes.length) {
+                    lines.add(new int[] {lineStart, i});
+                }
+                lineStart = i + 1;
+            }
+        }
+
+        // The format is decided by the footers too, so a damaged header does not
+        // make a checksummed file look like an old one
+        boolean headerValid = !lines.isEmpty()
+            && lineText(bytes, lines.get(0), StandardCharsets.UTF_8).equals(FILE_HEADER);
+        boolean legacyFormat = !headerValid && !hasChecksumFooters(bytes, lines);
+
+        // Old files were written with the platform charset, checksummed ones with UTF-8
+        Charset charset = legacyFormat ? Charset.defaultCharset() : StandardCharsets.UTF_8;
+        VerifyReport report = new VerifyReport(file, legacyFormat);
+
+        int firstRecord = 0;
+        if (!legacyFormat && !(headerValid || isChecksummedRecord(lineText(bytes, lines.get(0), charset)))) {
+            report.addDamaged(1, lineText(bytes, lines.get(0), charset), "unreadable file header");
+            firstRecord = 1;
+        } else if (headerValid) {
+            firstRecord = 1;
+        } else if (!legacyFormat) {
+            report.addBlockProblem("File header is missing");
+        }
+
+        // The trailer is the last non-empty line of a checksummed file
+        int recordsEnd = lines.size();
+        while (recordsEnd > firstRecord && isBlankLine(bytes, lines.get(recordsEnd - 1))) {
+            recordsEnd--;
+        }
+        String trailer = null;
+        if (!legacyFormat && recordsEnd > firstRecord
+            && lineStartsWith(bytes, lines.get(recordsEnd - 1), FILE_TRAILER_PREFIX)) {
+            trailer = lineText(bytes, lines.get(recordsEnd - 1), charset);
+            recordsEnd--;
+        }
+
+        // Split into blocks: at each footer for checksummed files, every RECORDS_PER_BLOCK lines otherwise.
+        // Footers are found on the raw bytes; lines are only decoded in the parallel stage.
+        List<int[]> blocks = new ArrayList<>();
+        int blockStart = firstRecord;
+        for (int i = firstRecord; i < recordsEnd; i++) {
+            boolean footer = !legacyFormat && lineStartsWith(bytes, lines.get(i), BLOCK_FOOTER_PREFIX);
+            if (footer || (legacyFormat && i - blockStart + 1 == RECORDS_PER_BLOCK)) {
+                blocks.add(new int[] {blockStart, i + 1, footer ? i : -1});
+                blockStart = i + 1;
+            }
+        }
+        if (blockStart < recordsEnd) {
+            blocks.add(new int[] {blockStart, recordsEnd, -1});
+        }
+
+        List<VerifyReport> results = IntStream.range(0, blocks.size())
+            .parallel()
+            .mapToObj(i -> verifyBlock(bytes, lines, blocks.get(i), legacyFormat, charset))
+            .collect(Collectors.toList());
+
+        // Merge in file order, checking that the block footers are numbered consecutively
+        int expectedIndex = 0;
+        int footerCount = 0;
+        int recordCount = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            int[] block = blocks.get(i);
+            report.merge(results.get(i));
+            recordCount += (block[2] >= 0 ? block[2] : block[1]) - block[0];
+
+            if (block[2] >= 0) {
+                footerCount++;
+                String[] parts = lineText(bytes, lines.get(block[2]), charset).split(",");
+                try {
+                    int index = Integer.parseInt(parts[1]);
+                    if (index != expectedIndex) {
+                        report.addBlockProblem("Block " + index + " found at line " + (block[2] + 1)
+                            + " where block " + expectedIndex + " was expected (blocks missing, duplicated or reordered)");
+                    }
+                    expectedIndex = index + 1;
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    expectedIndex++;  // Unreadable footer, already reported by verifyBlock
+                }
+            }
+        }
+
+        if (!legacyFormat) {
+            if (trailer == null) {
+                report.addBlockProblem("File has no end trailer (file truncated?)");
+            } else {
+                String[] parts = trailer.split(",");
+                try {
+                    if (parts.length != 3
+                        || Integer.parseInt(parts[1]) != footerCount
+                        || Integer.parseInt(parts[2]) != recordCount) {
+                        report.addBlockProblem("End trailer \"" + trailer + "\" does not match the " + footerCount
+                            + " block(s) and " + recordCount + " record(s) found (blocks missing or duplicated)");
+                    }
+                } catch (NumberFormatException e) {
+                    report.addBlockProblem("File has an unreadable end trailer: " + trailer);
+                }
+            }
+        }
+
+        report.setBlockCount(blocks.size());
+        return report;
+    }
+
+    private static boolean hasChecksumFooters(byte[] bytes, List<int[]> lines) {
+        for (int[] line : lines) {
+            if (lineStartsWith(bytes, line, BLOCK_FOOTER_PREFIX) || lineStartsWith(bytes, line, FILE_TRAILER_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean lineStartsWith(byte[] bytes, int[] line, byte[] prefix) {
+        if (line[1] - line[0] < prefix.length || bytes[line[0]] != '#') return false;
+        for (int i = 1; i < prefix.length; i++) {
+            if (bytes[line[0] + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlankLine(byte[] bytes, int[] line) {
+        int length = line[1] - line[0];
+        return length == 0 || (length == 1 && bytes[line[0]] == '\r');
+    }
+
+    private static boolean isChecksummedRecord(String text) {
+        if (text.length() <= 9 || text.charAt(8) != ',') return false;
+        for (int i = 0; i < 8; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static VerifyReport verifyBlock(byte[] bytes, List<int[]> lines, int[] block,
+                                            boolean legacyFormat, Charset charset) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);  // Not thread safe, one per block
+        VerifyReport result = new VerifyReport(null, legacyFormat);
+        int recordsEnd = block[2] >= 0 ? block[2] : block[1];
+
+        // Hashes each line without any '\r', exactly as encodeDataFile did, so CRLF conversion is harmless
+        Checksum blockChecksum = new Crc32c();
+
+        for (int i = block[0]; i < recordsEnd; i++) {
+            int[] line = lines.get(i);
+            int end = line[1] > line[0] && bytes[line[1] - 1] == '\r' ? line[1] - 1 : line[1];
+            blockChecksum.update(bytes, line[0], end - line[0]);
+            blockChecksum.update('\n');
+
+            String text = lineText(bytes, line, charset);
+            if (text.isEmpty()) continue;
+
+            String record = text;
+            if (!legacyFormat) {
+                // Record checksum is 8 hex digits and a comma, covering the bytes after it
+                int start = line[0] + 9;
+                if (!isChecksummedRecord(text) || end < start
+                    || crc32c(bytes, start, end - start) != Long.parseLong(text.substring(0, 8), 16)) {
+                    result.addDamaged(i + 1, text, "checksum mismatch");
+                    continue;
+                }
+                record = text.substring(9);
+            }
+
+            try {
+                result.addRecovered(parseRecord(record, dateFormat));
+            } catch (ParseException | NumberFormatException e) {
+                result.addDamaged(i + 1, text, "unparseable record");
+            }
+        }
+
+        if (!legacyFormat) {
+            String range = "lines " + (block[0] + 1) + "-" + block[1];
+            if (block[2] < 0) {
+                result.addBlockProblem("Block at " + range + " has no checksum footer (file truncated?)");
+            } else {
+                String footer = lineText(bytes, lines.get(block[2]), charset);
+                String[] parts = footer.split(",");
+                try {
+                    if (parts.length != 4
+                        || Integer.parseInt(parts[2]) != block[2] - block[0]
+                        || Long.parseLong(parts[3], 16) != blockChecksum.getValue()) {
+                        result.addBlockProblem("Block at " + range + " failed its checksum (records lost, added or reordered)");
+                    }
+                } catch (NumberFormatException e) {
+                    result.addBlockProblem("Block at " + range + " has an unreadable footer: " + footer);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static String lineText(byte[] bytes, int[] line, Charset charset) {
+        int end = line[1];
+        if (end > line[0] && bytes[end - 1] == '\r') end--;
+        return new String(bytes, line[0], end - line[0], charset);
+    }
+
+    // Verifies the data file and, if anything is damaged, rewrites it with every recoverable record
+    static VerifyReport repairDataFile(File file) throws IOException {
+        VerifyReport report = verifyDataFile(file);
+        if (!report.isClean()) {
+            applyRepair(file, report);
+            writeFileAtomically(file, encodeDataFile(report.getRecovered()));
+        }
+        return report;
+    }
+
+    // Keeps a backup of the original file and writes the damaged records next to it
+    private static void applyRepair(File file, VerifyReport report) throws IOException {
+        Files.copy(file.toPath(), new File(file.getPath() + ".bak").toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> damagedLines = new ArrayList<>();
+        for (DamagedRecord damaged : report.getDamaged()) {
+            damagedLines.add(damaged.toString());
+        }
+        damagedLines.addAll(report.getBlockProblems());
+        writeFileAtomically(new File(file.getPath() + ".damaged"), damagedLines);
+    }
+
+    // Turns every occurrence that fell due up to today into a stored expense,
+    // adding them to the map in a single batch
+    private void materializeRecurringExpenses(List<RecurringExpense> definitions) {
+        Date today = startOfDay(new Date());
+        List<Expense> batch = new ArrayList<>();
+
+        for (RecurringExpense recurring : definitions) {
+            Date from = recurring.getMaterializedThrough() == null
+                ? recurring.getStartDate()
+                : new Date(recurring.getMaterializedThrough().getTime() + 1);
+
+            batch.addAll(recurring.occurrencesBetween(from, today));
+            recurring.setMaterializedThrough(today);
+        }
+
+        // Occurrences a rule already stored before this batch, e.g. when expenses were
+        // saved on the last close but recurring.txt could not be. Keyed by rule, so
+        // identical rules and hand-typed entries never suppress each other.
+        Set<String> stored = new HashSet<>();
+        for (List<Expense> expenses : expenseMap.values()) {
+            for (Expense expense : expenses) {
+                if (expense.getRecurringId() != null) {
+                    stored.add(expense.getRecurringId() + "@" + expense.getDate().getTime());
+                }
+            }
+        }
+
+        for (Expense expense : batch) {
+            if (stored.contains(expense.getRecurringId() + "@" + expense.getDate().getTime())) {
+                continue;
+            }
+            expenseMap.putIfAbsent(expense.getCategory(), new ArrayList<>());
+            expenseMap.get(expense.getCategory()).add(expense);
+        }
+    }
+
+    // Computes (without storing) recurring occurrences in [from, to] that have not been materialized yet
+    private List<Expense> projectRecurringExpenses(Date from, Date to) {
+        List<Expense> projected = new ArrayList<>();
+
+        for (RecurringExpense recurring : recurringExpenses) {
+            Date start = from;
+            Date materializedThrough = recurring.getMaterializedThrough();
+            if (materializedThrough != null && !materializedThrough.before(start)) {
+                start = new Date(materializedThrough.getTime() + 1);
+            }
+            projected.addAll(recurring.occurrencesBetween(start, to));
+        }
+
+        return projected;
+    }
+
+    private void saveRecurringToFile() {
+        try {
+            List<String> lines = new ArrayList<>();
+            for (RecurringExpense recurring : recurringExpenses) {
+                // Format: rule,category,amount,start,materializedThrough,description
+                lines.add(String.format("%s,%s,%f,%s,%s,%s",
+                    recurring.getRule(dateFormat),
+                    recurring.getCategory(),
+                    recurring.getAmount(),
+                    dateFormat.format(recurring.getStartDate()),
+                    recurring.getMaterializedThrough() == null
+                        ? "-" : dateFormat.format(recurring.getMaterializedThrough()),
+                    recurring.getDescription().replace(',', ';')  // Escape commas in description
+                ));
+            }
+            writeFileAtomically(new File(RECURRING_FILE), lines);
+        } catch (IOException e) {
+            System.err.println("Error saving recurring file: " + e.getMessage());
+            JOptionPane.showMessageDialog(this, "Error saving recurring expenses: " + e.getMessage());
+        }
+    }
+
+    private void loadRecurringFromFile() {
+        File file = new File(RECURRING_FILE);
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(
+                 new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
             String line;
 
             while ((line = reader.readLine()) != null) {
                 try {
-                    // Parse CSV-like format
-                    String[] parts = line.split(",", 4); // Limit to 4 parts
-
-                    if (parts.length >= 4) {
-                        String category = parts[0];
-                        double amount = Double.parseDouble(parts[1]);
-                        String description = parts[2];
-                        Date date = dateFormat.parse(parts[3]);
+                    String[] parts = line.split(",", 6); // Description is last and may be anything
 
-                        Expense expense = new Expense(amount, category, description, date);
+                    if (parts.length >= 6) {
+                        RecurringExpense recurring = RecurringExpense.fromRule(parts[0], dateFormat,
+                            Double.parseDouble(parts[2]),
+                            parts[1],
+                            parts[5],
+                            dateFormat.parse(parts[3]),
+                            parts[4].equals("-") ? null : dateFormat.parse(parts[4]));
 
-                        expenseMap.putIfAbsent(category, new ArrayList<>());
-                        expenseMap.get(category).add(expense);
+                        recurringExpenses.add(recurring);
                     }
-                } catch (ParseException | NumberFormatException e) {
-                    System.err.println("Error parsing line: " + line);
+                } catch (ParseException | IllegalArgumentException e) {
+                    System.err.println("Error parsing recurring line: " + line);
                 }
             }
         } catch (IOException e) {
-            System.err.println("Error loading file: " + e.getMessage());
+            System.err.println("Error loading recurring file: " + e.getMessage());
         }
     }
 
+    static Date startOfDay(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTime();
+    }
+
+    static Date addDays(Date date, int days) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.add(Calendar.DAY_OF_MONTH, days);
+        return cal.getTime();
+    }
+
     public static void main(String[] args) {
+        // Command line: --verify [file] reports damage, --repair [file] also fixes it
+        if (args.length > 0 && (args[0].equals("--verify") || args[0].equals("--repair"))) {
+            File file = new File(args.length > 1 ? args[1] : DATA_FILE);
+            boolean repair = args[0].equals("--repair");
+            try {
+                VerifyReport report = repair ? repairDataFile(file) : verifyDataFile(file);
+                report.print(System.out);
+                if (repair) {
+                    System.out.println(report.isClean()
+                        ? "No repair needed, " + file + " was left unchanged"
+                        : "Rewrote " + file + " with " + report.getRecovered().size() + " record(s); original backed up to "
+                            + file + ".bak, damaged records written to " + file + ".damaged");
+                }
+                System.exit(report.isClean() ? 0 : 1);
+            } catch (IOException e) {
+                System.err.println("Error reading " + file + ": " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
@@ -584,12 +1232,18 @@ public class ExpenseTracker extends JFrame {
         private String category;
         private String description;
         private Date date;
+        private String recurringId;  // Rule this occurrence was generated from, null if entered by hand
 
         public Expense(double amount, String category, String description, Date date) {
+            this(amount, category, description, date, null);
+        }
+
+        public Expense(double amount, String category, String description, Date date, String recurringId) {
             this.amount = amount;
             this.category = category;
             this.description = description;
             this.date = date;
+            this.recurringId = recurringId;
         }
 
         public double getAmount() {
@@ -607,6 +1261,328 @@ public class ExpenseTracker extends JFrame {
         public Date getDate() {
             return date;
         }
+
+        public String getRecurringId() {
+            return recurringId;
+        }
+    }
+
+    // A record that failed verification
+    static class DamagedRecord {
+        private int lineNumber;
+        private String text;
+        private String reason;
+
+        public DamagedRecord(int lineNumber, String text, String reason) {
+            this.lineNumber = lineNumber;
+            this.text = text;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + " (" + reason + "): " + text;
+        }
+    }
+
+    // Result of verifying the data file: what could be recovered and what is damaged
+    static class VerifyReport {
+        private File file;
+        private boolean legacyFormat;
+        private int blockCount;
+        private List<Expense> recovered = new ArrayList<>();
+        private List<DamagedRecord> damaged = new ArrayList<>();
+        private List<String> blockProblems = new ArrayList<>();
+
+        public VerifyReport(File file, boolean legacyFormat) {
+            this.file = file;
+            this.legacyFormat = legacyFormat;
+        }
+
+        void setBlockCount(int blockCount) {
+            this.blockCount = blockCount;
+        }
+
+        void addRecovered(Expense expense) {
+            recovered.add(expense);
+        }
+
+        void addDamaged(int lineNumber, String text, String reason) {
+            damaged.add(new DamagedRecord(lineNumber, text, reason));
+        }
+
+        void addBlockProblem(String problem) {
+            blockProblems.add(problem);
+        }
+
+        void merge(VerifyReport other) {
+            recovered.addAll(other.recovered);
+            damaged.addAll(other.damaged);
+            blockProblems.addAll(other.blockProblems);
+        }
+
+        public boolean isClean() {
+            return damaged.isEmpty() && blockProblems.isEmpty();
+        }
+
+        public List<Expense> getRecovered() {
+            return recovered;
+        }
+
+        public List<DamagedRecord> getDamaged() {
+            return damaged;
+        }
+
+        public List<String> getBlockProblems() {
+            return blockProblems;
+        }
+
+        public void print(PrintStream out) {
+            out.println("Checked " + file + ": " + blockCount + " block(s)"
+                + (legacyFormat ? " (old format without checksums)" : ""));
+            for (DamagedRecord record : damaged) {
+                out.println("  " + record);
+            }
+            for (String problem : blockProblems) {
+                out.println("  " + problem);
+            }
+            out.println("Recovered " + recovered.size() + " record(s), " + damaged.size() + " damaged");
+        }
+    }
+
+    // CRC32C (Castagnoli) checksum; java.util.zip.CRC32C needs Java 9 and this app supports Java 8
+    static class Crc32c implements Checksum {
+        private static final int[] TABLE = new int[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                int crc = i;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+                }
+                TABLE[i] = crc;
+            }
+        }
+
+        private int crc = 0xFFFFFFFF;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                crc = (crc >>> 8) ^ TABLE[(crc ^ b[i]) & 0xFF];
+            }
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xFFFFFFFF;
+        }
+    }
+
+    // How often a recurring expense repeats
+    enum Frequency {
+        DAILY("Daily", Calendar.DAY_OF_MONTH, 1),
+        WEEKLY("Weekly", Calendar.DAY_OF_MONTH, 7),
+        MONTHLY("Monthly", Calendar.MONTH, 1),
+        YEARLY("Yearly", Calendar.YEAR, 1);
+
+        private final String label;
+        private final int calendarField;
+        private final int step;
+
+        Frequency(String label, int calendarField, int step) {
+            this.label = label;
+            this.calendarField = calendarField;
+            this.step = step;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public static Frequency fromLabel(String label) {
+            for (Frequency frequency : values()) {
+                if (frequency.label.equals(label)) {
+                    return frequency;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Inner class to represent a recurring expense rule (rent, subscriptions, EMIs).
+    // Only the rule is stored; occurrences are computed from it when needed.
+    static class RecurringExpense {
+        private String id;
+        private double amount;
+        private String category;
+        private String description;
+        private Date startDate;
+        private Frequency frequency;
+        private int interval;
+        private Date endDate;               // Inclusive, null = repeats forever
+        private Date materializedThrough;   // Occurrences up to here are already stored
+
+        public RecurringExpense(String id, double amount, String category, String description, Date startDate,
+                                Frequency frequency, int interval, Date endDate, Date materializedThrough) {
+            if (interval < 1) {
+                throw new IllegalArgumentException("Interval must be at least 1");
+            }
+            this.id = id;
+            this.amount = amount;
+            this.category = category;
+            this.description = description;
+            this.startDate = startDate;
+            this.frequency = frequency;
+            this.interval = interval;
+            this.endDate = endDate;
+            this.materializedThrough = materializedThrough;
+        }
+
+        // Parses an RRULE-lite string such as "ID=<uuid>;FREQ=MONTHLY;INTERVAL=1;UNTIL=2027-03-31"
+        public static RecurringExpense fromRule(String rule, SimpleDateFormat dateFormat, double amount,
+                                                String category, String description, Date startDate,
+                                                Date materializedThrough) throws ParseException {
+            String id = null;
+            Frequency frequency = null;
+            int interval = 1;
+            Date endDate = null;
+
+            for (String part : rule.split(";")) {
+                String[] keyValue = part.split("=", 2);
+                if (keyValue.length != 2) {
+                    throw new IllegalArgumentException("Invalid rule part: " + part);
+                }
+                switch (keyValue[0]) {
+                    case "ID":
+                        id = keyValue[1];
+                        break;
+                    case "FREQ":
+                        frequency = Frequency.valueOf(keyValue[1]);
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(keyValue[1]);
+                        break;
+                    case "UNTIL":
+                        endDate = dateFormat.parse(keyValue[1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown rule part: " + keyValue[0]);
+                }
+            }
+
+            if (frequency == null) {
+                throw new IllegalArgumentException("Rule has no FREQ: " + rule);
+            }
+
+            if (id == null) {
+                id = UUID.randomUUID().toString();  // Rules saved before IDs were added
+            }
+
+            return new RecurringExpense(id, amount, category, description, startDate,
+                frequency, interval, endDate, materializedThrough);
+        }
+
+        public String getRule(SimpleDateFormat dateFormat) {
+            String rule = "ID=" + id + ";FREQ=" + frequency.name() + ";INTERVAL=" + interval;
+            if (endDate != null) {
+                rule += ";UNTIL=" + dateFormat.format(endDate);
+            }
+            return rule;
+        }
+
+        // The n-th occurrence is always computed from the start date, so a rule
+        // starting on the 31st lands on the last day of shorter months without drifting
+        public Date occurrence(int n) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(startDate);
+            cal.add(frequency.calendarField, n * frequency.step * interval);
+            return cal.getTime();
+        }
+
+        // Index of the first occurrence on or after the given date
+        private int firstIndexOnOrAfter(Date from) {
+            if (!from.after(startDate)) return 0;
+
+            // Jump close to the answer instead of stepping through every earlier occurrence
+            int n;
+            if (frequency.calendarField == Calendar.DAY_OF_MONTH) {
+                long days = Math.round((from.getTime() - startDate.getTime()) / 86400000.0);
+                n = (int) (days / (frequency.step * interval));
+            } else {
+                Calendar startCal = Calendar.getInstance();
+                startCal.setTime(startDate);
+                Calendar fromCal = Calendar.getInstance();
+                fromCal.setTime(from);
+
+                int months = (fromCal.get(Calendar.YEAR) - startCal.get(Calendar.YEAR)) * 12
+                    + fromCal.get(Calendar.MONTH) - startCal.get(Calendar.MONTH);
+                int monthsPerStep = frequency == Frequency.YEARLY ? 12 : 1;
+                n = Math.max(0, months / (monthsPerStep * interval));
+            }
+
+            // Correct the estimate (DST shifts, clamped month ends)
+            while (occurrence(n).before(from)) n++;
+            while (n > 0 && !occurrence(n - 1).before(from)) n--;
+            return n;
+        }
+
+        // All occurrences in [from, to], bounded by the rule's start and end dates
+        public List<Expense> occurrencesBetween(Date from, Date to) {
+            List<Expense> occurrences = new ArrayList<>();
+            Date last = (endDate != null && endDate.before(to)) ? endDate : to;
+
+            for (int n = firstIndexOnOrAfter(from); ; n++) {
+                Date date = occurrence(n);
+                if (date.after(last)) break;
+                occurrences.add(new Expense(amount, category, description, date, id));
+            }
+
+            return occurrences;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public Date getStartDate() {
+            return startDate;
+        }
+
+        public Date getMaterializedThrough() {
+            return materializedThrough;
+        }
+
+        public void setMaterializedThrough(Date materializedThrough) {
+            this.materializedThrough = materializedThrough;
+        }
+
+        public void setEndDate(Date endDate) {
+            this.endDate = endDate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s - %s: ₹%.2f (%s)", category, description, amount, frequency.getLabel());
+        }
     }
 
     // Inner class for date chooser component